@@ -0,0 +1,115 @@
+#!/usr/bin/env bash
+#
+# Measures time to first WebSocket accept (or first HTTP answer, see below) and idle RSS
+# for one way of launching the app.
+#
+#   scripts/startup-benchmark.sh <jar|aot|cds|native> [runs]
+#
+# Build first:
+#   jar, aot, cds   ./mvnw -Paot-cds -DskipTests package
+#   native          ./mvnw -Pnative -DskipTests native:compile
+#
+# The app reads MONGODB_URI, GOOGLE_CLIENT_ID, GOOGLE_CLIENT_SECRET and JWT_SECRET from
+# the environment; placeholders are used for any that are unset. Every mode runs with
+# Mongo index creation turned off, as the CDS training run does, so nothing on the
+# startup path talks to Mongo and it does not have to be reachable.
+#
+# /ws/chat sits behind OAuth login. Set BENCH_COOKIE (e.g. "SESSION=...") and BENCH_TOKEN
+# (from /api/auth/token) to wait for a real 101 Switching Protocols; the timing column is
+# then first_accept_ms. Without them the OAuth redirect is the best signal available, so
+# the first HTTP answer of any kind is timed and the column is named first_http_ms.
+#
+# Prints a CSV header, then one line per run: mode,run,<first_accept_ms|first_http_ms>,idle_rss_kb
+
+set -euo pipefail
+
+MODE=${1:?usage: $0 <jar|aot|cds|native> [runs]}
+RUNS=${2:-5}
+PORT=${PORT:-8080}
+IDLE_SECONDS=${IDLE_SECONDS:-10}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+JAVA_OPTS=${JAVA_OPTS:-}
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+TARGET="$ROOT/target"
+JAR_NAME=study-nexus-0.0.1-SNAPSHOT.jar
+
+export MONGODB_URI=${MONGODB_URI:-mongodb://localhost:27017/study-nexus-bench}
+export GOOGLE_CLIENT_ID=${GOOGLE_CLIENT_ID:-bench}
+export GOOGLE_CLIENT_SECRET=${GOOGLE_CLIENT_SECRET:-bench}
+export JWT_SECRET=${JWT_SECRET:-bench-secret-bench-secret-bench-secret-0000}
+
+# Same startup work as the CDS training run: no background index builds against Mongo
+PROPS=(-Dspring.data.mongodb.auto-index-creation=false)
+
+case "$MODE" in
+  jar)    CMD=(java $JAVA_OPTS "${PROPS[@]}" -jar "$TARGET/$JAR_NAME") ;;
+  aot)    CMD=(java $JAVA_OPTS "${PROPS[@]}" -Dspring.aot.enabled=true -jar "$TARGET/cds/$JAR_NAME") ;;
+  cds)    CMD=(java $JAVA_OPTS "${PROPS[@]}" -XX:SharedArchiveFile="$TARGET/cds/application.jsa"
+                -Dspring.aot.enabled=true -jar "$TARGET/cds/$JAR_NAME") ;;
+  native) CMD=("$TARGET/study-nexus" "${PROPS[@]}") ;;
+  *)      echo "unknown mode: $MODE" >&2; exit 1 ;;
+esac
+
+URL="http://localhost:$PORT/ws/chat"
+if [[ -n "${BENCH_TOKEN:-}" ]]; then
+  URL="$URL?token=$BENCH_TOKEN"
+fi
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+handshake_status() {
+  curl -s -o /dev/null -w '%{http_code}' --max-time 1 \
+    ${BENCH_COOKIE:+-H "Cookie: $BENCH_COOKIE"} \
+    -H 'Connection: Upgrade' -H 'Upgrade: websocket' \
+    -H 'Sec-WebSocket-Version: 13' -H 'Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==' \
+    "$URL" || true
+}
+
+is_accepting() {
+  local status
+  status=$(handshake_status)
+  if [[ -n "${BENCH_COOKIE:-}" ]]; then
+    [[ "$status" == "101" ]]
+  else
+    [[ "$status" != "000" ]]
+  fi
+}
+
+if [[ -n "${BENCH_COOKIE:-}" ]]; then
+  echo "mode,run,first_accept_ms,idle_rss_kb"
+else
+  echo "no BENCH_COOKIE/BENCH_TOKEN set: timing first HTTP answer, not WebSocket accept" >&2
+  echo "mode,run,first_http_ms,idle_rss_kb"
+fi
+for run in $(seq 1 "$RUNS"); do
+  start=$(now_ms)
+  "${CMD[@]}" --server.port="$PORT" > "$TARGET/startup-benchmark-$MODE-$run.log" 2>&1 &
+  pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+
+  until is_accepting; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "app exited during startup, see $TARGET/startup-benchmark-$MODE-$run.log" >&2
+      exit 1
+    fi
+    if (( $(now_ms) - start > TIMEOUT_SECONDS * 1000 )); then
+      echo "timed out waiting for $URL" >&2
+      kill "$pid"
+      exit 1
+    fi
+    sleep 0.05
+  done
+  first_accept=$(( $(now_ms) - start ))
+
+  sleep "$IDLE_SECONDS"
+  rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+
+  echo "$MODE,$run,$first_accept,$rss"
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  trap - EXIT
+done
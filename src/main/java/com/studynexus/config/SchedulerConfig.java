@@ -0,0 +1,35 @@
+package com.studynexus.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+@Configuration
+public class SchedulerConfig {
+
+    /**
+     * Scheduler for blocking or CPU-heavy work that must stay off the Netty event loop,
+     * such as JWT crypto and JSON parsing of incoming frames.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Value("${execution.mode:bounded-elastic}") ExecutionMode mode) {
+        return switch (mode) {
+            // One virtual thread per task; blocking calls park the virtual thread, not a carrier
+            case VIRTUAL -> Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "blocking-virtual");
+            // Same limits as Schedulers.boundedElastic(), but owned by the context so it can be disposed
+            case BOUNDED_ELASTIC -> Schedulers.newBoundedElastic(
+                    Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE,
+                    Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+                    "blocking");
+        };
+    }
+
+    public enum ExecutionMode {
+        BOUNDED_ELASTIC,
+        VIRTUAL
+    }
+}
@@ -30,6 +30,7 @@ public class SecurityConfig {
                         .pathMatchers("/", "/login", "/oauth2/**", "/webjars/**", "/css/**", "/js/**").permitAll()
                         .pathMatchers("/api/public/**").permitAll()
                         .pathMatchers("/api/chat/**").authenticated()
+                        .pathMatchers("/api/admin/**").authenticated()
                         .anyExchange().authenticated()
                 )
                 .oauth2Login(oauth2 -> oauth2
@@ -0,0 +1,41 @@
+package com.studynexus.controller;
+
+import com.studynexus.dto.ChatMetricsSnapshot;
+import com.studynexus.service.AdminMetricsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final AdminMetricsService adminMetricsService;
+
+    @Value("${admin.emails:}")
+    private Set<String> adminEmails;
+
+    @GetMapping(value = "/metrics/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ChatMetricsSnapshot> streamMetrics(@AuthenticationPrincipal OAuth2AuthenticationToken authentication) {
+        if (authentication == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated"));
+        }
+
+        String email = authentication.getPrincipal().getAttribute("email");
+        if (email == null || !adminEmails.contains(email)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required"));
+        }
+
+        return adminMetricsService.stream();
+    }
+}
@@ -0,0 +1,137 @@
+package com.studynexus.controller;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.studynexus.model.AttachmentRef;
+import com.studynexus.model.User;
+import com.studynexus.service.AttachmentService;
+import com.studynexus.service.ChatService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/attachments")
+@RequiredArgsConstructor
+public class AttachmentController {
+    private final AttachmentService attachmentService;
+    private final ChatService chatService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<AttachmentRef> upload(@AuthenticationPrincipal OAuth2AuthenticationToken authentication,
+                                      @RequestParam String roomId,
+                                      @RequestPart("file") FilePart file) {
+        return currentUserId(authentication)
+                .flatMap(userId -> {
+                    if (!chatService.isValidRoomMember(userId, roomId)) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this chat room"));
+                    }
+                    return attachmentService.store(file, userId, roomId);
+                });
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> download(@AuthenticationPrincipal OAuth2AuthenticationToken authentication,
+                                                           @PathVariable String id,
+                                                           @RequestHeader HttpHeaders requestHeaders) {
+        return authorizedAttachment(authentication, id)
+                .map(file -> toResponse(file, requestHeaders));
+    }
+
+    @GetMapping("/{id}/thumbnail")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> thumbnail(@AuthenticationPrincipal OAuth2AuthenticationToken authentication,
+                                                            @PathVariable String id,
+                                                            @RequestHeader HttpHeaders requestHeaders) {
+        return authorizedAttachment(authentication, id)
+                .flatMap(attachmentService::findThumbnail)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not available")))
+                .map(file -> toResponse(file, requestHeaders));
+    }
+
+    private Mono<String> currentUserId(OAuth2AuthenticationToken authentication) {
+        if (authentication == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated"));
+        }
+
+        String email = authentication.getPrincipal().getAttribute("email");
+
+        return chatService.getUserByEmail(email)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")))
+                .map(User::getId);
+    }
+
+    private Mono<GridFSFile> authorizedAttachment(OAuth2AuthenticationToken authentication, String id) {
+        return currentUserId(authentication)
+                .flatMap(userId -> attachmentService.findAttachment(id)
+                        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Attachment not found")))
+                        .flatMap(file -> {
+                            String roomId = AttachmentService.roomIdOf(file);
+                            if (roomId == null || !chatService.isValidRoomMember(userId, roomId)) {
+                                return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this attachment"));
+                            }
+                            return Mono.just(file);
+                        }));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> toResponse(GridFSFile file, HttpHeaders requestHeaders) {
+        long length = file.getLength();
+        MediaType contentType = MediaType.parseMediaType(AttachmentService.contentTypeOf(file));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setContentDisposition(contentDisposition(file, contentType));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.set("X-Content-Type-Options", "nosniff");
+
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();
+        }
+
+        // Multi-range requests are answered with the whole file
+        if (ranges.size() != 1) {
+            headers.setContentLength(length);
+            return new ResponseEntity<>(attachmentService.download(file, 0, length), headers, HttpStatus.OK);
+        }
+
+        long start;
+        long end;
+        try {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .build();
+        }
+
+        long rangeLength = end - start + 1;
+        headers.setContentLength(rangeLength);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        return new ResponseEntity<>(attachmentService.download(file, start, rangeLength), headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    private ContentDisposition contentDisposition(GridFSFile file, MediaType contentType) {
+        // Only render types the browser cannot execute inline; everything else is downloaded
+        boolean inline = (contentType.getType().equals("image") && !contentType.getSubtype().contains("svg"))
+                || contentType.isCompatibleWith(MediaType.APPLICATION_PDF);
+        return (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                .filename(file.getFilename())
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.studynexus.controller;
 
 import com.studynexus.dto.ChatMessageDTO;
+import com.studynexus.dto.ChatRoomDTO;
 import com.studynexus.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -12,12 +13,15 @@ import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chat")
 @RequiredArgsConstructor
 public class ChatController {
+    private static final int MAX_ROOMS = 200;
+
     private final ChatService chatService;
 
     @GetMapping("/direct-room")
@@ -29,24 +33,43 @@ public class ChatController {
         if (authentication == null) {
             return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated"));
         }
-        return Mono.zip(chatService.userExists(user1), chatService.userExists(user2))
-                .flatMap(tuple -> {
-                    Boolean user1Exists = tuple.getT1();
-                    Boolean user2Exists = tuple.getT2();
-
-                    if (!user1Exists || !user2Exists) {
-                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
-                                .body(Map.of("error", "One or both users do not exist")));
+
+        String email = authentication.getPrincipal().getAttribute("email");
+
+        return chatService.getUserByEmail(email)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")))
+                .flatMap(user -> {
+                    // Only a participant may open (and so create) a direct room
+                    if (!user.getId().equals(user1) && !user.getId().equals(user2)) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this chat room"));
                     }
 
-                    String roomId = chatService.generateDirectRoomId(user1, user2);
-                    return Mono.just(ResponseEntity.ok(Map.of("roomId", roomId)));
+                    return chatService.getOrCreateDirectRoom(user1, user2)
+                            .map(room -> ResponseEntity.ok(Map.of("roomId", room.getId())))
+                            .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                    .body(Map.of("error", "One or both users do not exist")));
                 });
     }
 
+    @GetMapping("/rooms")
+    public Flux<ChatRoomDTO> getMyRooms(@AuthenticationPrincipal OAuth2AuthenticationToken authentication,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        if (authentication == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated"));
+        }
+
+        String email = authentication.getPrincipal().getAttribute("email");
+
+        return chatService.getUserByEmail(email)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")))
+                .flatMapMany(user -> chatService.getUserRooms(user.getId(), Math.min(Math.max(limit, 1), MAX_ROOMS)))
+                .map(ChatRoomDTO::fromRoom);
+    }
+
     @GetMapping("/history/{roomId}")
     public Flux<ChatMessageDTO> getChatHistory(@AuthenticationPrincipal OAuth2AuthenticationToken authentication,
-                                               @PathVariable String roomId) {
+                                               @PathVariable String roomId,
+                                               @RequestParam(required = false) Long since) {
         if (authentication == null) {
             return Flux.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated"));
         }
@@ -64,7 +87,7 @@ public class ChatController {
                         return Flux.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this chat room"));
                     }
 
-                    return chatService.getRoomHistory(roomId)
+                    return chatService.getRoomHistory(roomId, since != null ? Instant.ofEpochMilli(since) : null)
                             .map(ChatMessageDTO::convertToDTO);
                 });
     }
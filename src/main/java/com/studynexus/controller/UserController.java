@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,6 +22,7 @@ import java.util.Map;
 public class UserController {
     private final OAuthUserService oAuthUserService;
     private final JWTUtil jwtUtil;
+    private final Scheduler blockingScheduler;
 
     @GetMapping("/api/user/me")
     public Mono<UserDTO> getCurrentUser(@AuthenticationPrincipal OAuth2AuthenticationToken authentication) {
@@ -45,6 +47,7 @@ public class UserController {
                 .switchIfEmpty(Mono.error(new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "User not found. Please complete registration first.")))
+                .publishOn(blockingScheduler)
                 .map(user -> {
                     Map<String, String> response = new HashMap<>();
                     response.put("token", jwtUtil.generateToken(user.getId()));
@@ -1,25 +1,45 @@
 package com.studynexus.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.studynexus.model.AttachmentRef;
 import com.studynexus.model.ChatMessage;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @Builder
 public class ChatMessageDTO {
+    // Set on persisted messages so clients can tell a resumed message they already have
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String id;
     private String type;
     private String roomId;
     private String senderId;
     private String content;
     private Long timestamp;
 
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<AttachmentRef> attachments;
+
+    // Only set on NOTIFICATION_ACK frames: the notification ids the client has received
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> ids;
+
+    // Only set on RECONNECT hints: how long the client should wait before reconnecting
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long reconnectDelay;
+
     public static ChatMessageDTO convertToDTO(ChatMessage message) {
         return ChatMessageDTO.builder()
+                .id(message.getId())
                 .type(message.getType().toString())
                 .roomId(message.getRoomId())
                 .senderId(message.getSenderId())
                 .content(message.getContent())
                 .timestamp(message.getTimestamp().toEpochMilli())
+                .attachments(message.getAttachments())
                 .build();
     }
 }
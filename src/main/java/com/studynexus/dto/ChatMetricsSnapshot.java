@@ -0,0 +1,24 @@
+package com.studynexus.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ChatMetricsSnapshot {
+    private String nodeId;
+    private Long timestamp;
+    private Long windowMillis;
+    private Integer sessions;
+    private List<RoomRate> topRoomsByMessages;
+    private List<RoomRate> topRoomsByFanOut;
+    private List<ConsumerLag> slowestConsumers;
+
+    public record RoomRate(String roomId, double perSecond) {
+    }
+
+    public record ConsumerLag(String userId, int pendingFrames) {
+    }
+}
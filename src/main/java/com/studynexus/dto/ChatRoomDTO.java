@@ -0,0 +1,30 @@
+package com.studynexus.dto;
+
+import com.studynexus.model.ChatRoom;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+@Builder
+public class ChatRoomDTO {
+    private String roomId;
+    private String type;
+    private Set<String> participants;
+    private Long lastActivity;
+    private String lastMessageSenderId;
+    private String lastMessagePreview;
+
+    public static ChatRoomDTO fromRoom(ChatRoom room) {
+        ChatRoom.LastMessage lastMessage = room.getLastMessage();
+        return ChatRoomDTO.builder()
+                .roomId(room.getId())
+                .type(room.getType() != null ? room.getType().toString() : null)
+                .participants(room.getParticipants())
+                .lastActivity(room.getLastActivity() != null ? room.getLastActivity().toEpochMilli() : null)
+                .lastMessageSenderId(lastMessage != null ? lastMessage.getSenderId() : null)
+                .lastMessagePreview(lastMessage != null ? lastMessage.getPreview() : null)
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.studynexus.metrics;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-window chat traffic counters. Handlers record into the current window; the
+ * metrics stream swaps in a fresh window once a second and reports the old one.
+ */
+@Component
+public class ChatMetrics {
+    @Getter
+    private final int topK;
+    private final int sketchDepth;
+    private final int sketchWidth;
+    private final AtomicReference<Window> current;
+
+    public ChatMetrics(@Value("${metrics.top-k:10}") int topK,
+                       @Value("${metrics.sketch.depth:4}") int sketchDepth,
+                       @Value("${metrics.sketch.width:2048}") int sketchWidth) {
+        this.topK = topK;
+        this.sketchDepth = sketchDepth;
+        this.sketchWidth = sketchWidth;
+        this.current = new AtomicReference<>(newWindow());
+    }
+
+    /**
+     * Records one chat message in the room and the number of connections it was fanned out to.
+     */
+    public void recordMessage(String roomId, int fanOut) {
+        Window window = current.get();
+        window.messages().add(roomId, 1);
+        if (fanOut > 0) {
+            window.deliveries().add(roomId, fanOut);
+        }
+    }
+
+    /**
+     * Closes the current window and starts a new one.
+     */
+    public Window rotate() {
+        return current.getAndSet(newWindow());
+    }
+
+    private Window newWindow() {
+        return new Window(System.currentTimeMillis(),
+                new HeavyHitters(topK, sketchDepth, sketchWidth),
+                new HeavyHitters(topK, sketchDepth, sketchWidth));
+    }
+
+    public record Window(long startedAt, HeavyHitters messages, HeavyHitters deliveries) {
+    }
+}
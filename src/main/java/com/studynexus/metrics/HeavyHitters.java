@@ -0,0 +1,64 @@
+package com.studynexus.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Tracks the top-K keys of a stream using a {@link CountMinSketch} for counts and a
+ * min-heap of at most K candidates. Memory is bounded by the sketch size plus K,
+ * independent of the number of distinct keys.
+ */
+public class HeavyHitters {
+    private final int k;
+    private final CountMinSketch sketch;
+
+    // Candidate keys and their latest estimates; guarded by this
+    private final Map<String, Long> candidates = new HashMap<>();
+    private final PriorityQueue<String> heap = new PriorityQueue<>(Comparator.comparingLong(candidates::get));
+
+    // Smallest estimate in a full heap, read without locking to skip most updates
+    private volatile long threshold;
+
+    public HeavyHitters(int k, int depth, int width) {
+        this.k = k;
+        this.sketch = new CountMinSketch(depth, width);
+    }
+
+    public void add(String key, long count) {
+        long estimate = sketch.add(key, count);
+        if (estimate <= threshold) {
+            return;
+        }
+        synchronized (this) {
+            if (candidates.containsKey(key)) {
+                heap.remove(key);
+                candidates.put(key, estimate);
+                heap.add(key);
+            } else if (candidates.size() < k) {
+                candidates.put(key, estimate);
+                heap.add(key);
+            } else if (estimate > candidates.get(heap.peek())) {
+                candidates.remove(heap.poll());
+                candidates.put(key, estimate);
+                heap.add(key);
+            }
+            if (candidates.size() == k) {
+                threshold = candidates.get(heap.peek());
+            }
+        }
+    }
+
+    /**
+     * The current top-K keys with their estimated counts, largest first.
+     */
+    public synchronized List<Map.Entry<String, Long>> top() {
+        List<Map.Entry<String, Long>> top = new ArrayList<>(candidates.entrySet().size());
+        candidates.forEach((key, estimate) -> top.add(Map.entry(key, estimate)));
+        top.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return top;
+    }
+}
@@ -0,0 +1,21 @@
+package com.studynexus.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Small reference to a file stored in GridFS. This is all a chat message carries;
+ * the bytes are fetched separately from /api/attachments/{id}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentRef {
+    private String id;
+    private String filename;
+    private String contentType;
+    private Long size;
+}
@@ -6,6 +6,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.List;
 
 @Data
 @Builder
@@ -18,11 +19,45 @@ public class ChatMessage {
     private String content;
     private Instant timestamp;
     private MessageType type;
+    private List<AttachmentRef> attachments;
+
+    /**
+     * Short text for notifications and conversation lists; attachment-only messages
+     * are summarized by count.
+     */
+    public String preview(int maxLength) {
+        if (content == null || content.isBlank()) {
+            int count = attachments != null ? attachments.size() : 0;
+            return count == 1 ? "[1 attachment]" : "[" + count + " attachments]";
+        }
+        return content.length() > maxLength ? content.substring(0, maxLength) + "…" : content;
+    }
 
     public enum MessageType {
         MESSAGE,
         JOIN_ROOM,
         USER_STATUS,
-        ROOM_JOINED
+        ROOM_JOINED,
+        RECONNECT,
+        NOTIFICATION,
+        // Sent by clients with the ids of NOTIFICATION frames they have received
+        NOTIFICATION_ACK,
+        // Ephemeral events: never persisted, coalesced per sender and room, dropped under load
+        TYPING(true),
+        CURSOR(true);
+
+        private final boolean ephemeral;
+
+        MessageType() {
+            this(false);
+        }
+
+        MessageType(boolean ephemeral) {
+            this.ephemeral = ephemeral;
+        }
+
+        public boolean isEphemeral() {
+            return ephemeral;
+        }
     }
 }
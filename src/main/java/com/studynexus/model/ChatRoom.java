@@ -1,24 +1,45 @@
 package com.studynexus.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.util.Set;
 
 @Data
 @Builder
 @Document(collection = "chat_rooms")
+// Serves "my conversations": match on participant, newest activity first
+@CompoundIndex(name = "participants_last_activity", def = "{'participants': 1, 'lastActivity': -1}")
 public class ChatRoom {
     @Id
     private String id;
     private String name;
     private Set<String> participants;
     private RoomType type;
+    private Instant createdAt;
+
+    // Kept current by ChatService.saveMessage; null until the first message
+    private Instant lastActivity;
+    private LastMessage lastMessage;
 
     public enum RoomType {
         DIRECT,
         GROUP
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LastMessage {
+        private String senderId;
+        private String preview;
+        private Instant timestamp;
+    }
 }
@@ -0,0 +1,25 @@
+package com.studynexus.model;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Set;
+
+@Data
+@Builder
+@Document(collection = "notification_digests")
+public class NotificationDigest {
+    @Id
+    private String id;
+    @Indexed
+    private String userId;
+    private int count;
+    private Set<String> roomIds;
+    private Instant firstAt;
+    private Instant lastAt;
+    private Instant createdAt;
+}
@@ -0,0 +1,39 @@
+package com.studynexus.model;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@Document(collection = "offline_inbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created", def = "{'userId': 1, 'createdAt': 1}"),
+        @CompoundIndex(name = "digested_user", def = "{'digested': 1, 'userId': 1}"),
+        @CompoundIndex(name = "claim_user", def = "{'claimedBy': 1, 'userId': 1}", sparse = true)
+})
+public class OfflineNotification {
+    @Id
+    private String id;
+    private String userId;
+    private String roomId;
+    private String senderId;
+    private String preview;
+
+    // Undelivered notifications are dropped after this long; the messages stay in history
+    @Indexed(expireAfter = "30d")
+    private Instant createdAt;
+
+    // Set once the notification has been rolled into a NotificationDigest
+    private boolean digested;
+
+    // Digest run that currently owns this notification, so concurrent nodes never digest it twice
+    private String claimedBy;
+    private Instant claimedAt;
+}
@@ -0,0 +1,61 @@
+package com.studynexus.service;
+
+import com.studynexus.dto.ChatMetricsSnapshot;
+import com.studynexus.metrics.ChatMetrics;
+import com.studynexus.metrics.HeavyHitters;
+import com.studynexus.websocket.ChatHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+@Service
+public class AdminMetricsService {
+    private final ChatMetrics chatMetrics;
+    private final ChatHandler chatHandler;
+    private final String nodeId;
+
+    // One ticker shared by every subscriber, so each window is rotated exactly once
+    private final Flux<ChatMetricsSnapshot> snapshots;
+
+    public AdminMetricsService(ChatMetrics chatMetrics,
+                               ChatHandler chatHandler,
+                               @Value("${metrics.node-id:${HOSTNAME:local}}") String nodeId) {
+        this.chatMetrics = chatMetrics;
+        this.chatHandler = chatHandler;
+        this.nodeId = nodeId;
+        this.snapshots = Flux.interval(Duration.ofSeconds(1))
+                .onBackpressureDrop()
+                .map(tick -> snapshot())
+                .share();
+    }
+
+    public Flux<ChatMetricsSnapshot> stream() {
+        return snapshots;
+    }
+
+    private ChatMetricsSnapshot snapshot() {
+        ChatMetrics.Window window = chatMetrics.rotate();
+        long now = System.currentTimeMillis();
+        // The first window after a quiet period can be longer than a second; report rates, not counts
+        long windowMillis = Math.max(1, now - window.startedAt());
+
+        return ChatMetricsSnapshot.builder()
+                .nodeId(nodeId)
+                .timestamp(now)
+                .windowMillis(windowMillis)
+                .sessions(chatHandler.sessionCount())
+                .topRoomsByMessages(rates(window.messages(), windowMillis))
+                .topRoomsByFanOut(rates(window.deliveries(), windowMillis))
+                .slowestConsumers(chatHandler.slowestConsumers(chatMetrics.getTopK()))
+                .build();
+    }
+
+    private static List<ChatMetricsSnapshot.RoomRate> rates(HeavyHitters hitters, long windowMillis) {
+        return hitters.top().stream()
+                .map(entry -> new ChatMetricsSnapshot.RoomRate(entry.getKey(), entry.getValue() * 1000.0 / windowMillis))
+                .toList();
+    }
+}
@@ -0,0 +1,178 @@
+package com.studynexus.service;
+
+import com.studynexus.model.AttachmentRef;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Extracts image dimensions and renders thumbnails for uploaded attachments. Decoding
+ * runs on a small bounded pool so a burst of uploads cannot starve other work. A job
+ * must take one of {@code workers + queue-size} permits before its source is even
+ * downloaded, so at most that many sources are held in memory at once; when no permit
+ * is free, extraction is skipped for that file.
+ */
+@Slf4j
+@Component
+public class AttachmentMetadataExtractor {
+    private static final String FILES_COLLECTION = "fs.files";
+
+    private final ReactiveGridFsTemplate gridFsTemplate;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Scheduler scheduler;
+    private final Semaphore permits;
+
+    @Value("${attachments.thumbnail.size:256}")
+    private int thumbnailSize;
+
+    @Value("${attachments.thumbnail.max-source-size:10MB}")
+    private DataSize maxSourceSize;
+
+    // Compressed size says little about decoded size; images declaring more pixels than this are skipped
+    @Value("${attachments.thumbnail.max-pixels:40000000}")
+    private long maxPixels;
+
+    public AttachmentMetadataExtractor(ReactiveGridFsTemplate gridFsTemplate,
+                                       ReactiveMongoTemplate mongoTemplate,
+                                       @Value("${attachments.metadata.workers:2}") int workers,
+                                       @Value("${attachments.metadata.queue-size:4}") int queueSize) {
+        this.gridFsTemplate = gridFsTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.scheduler = Schedulers.newBoundedElastic(workers, queueSize, "attachment-metadata");
+        this.permits = new Semaphore(workers + queueSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    /**
+     * Starts extraction in the background. Only images under
+     * {@code attachments.thumbnail.max-source-size} and declaring no more than
+     * {@code attachments.thumbnail.max-pixels} are processed.
+     */
+    public void extractAsync(AttachmentRef attachment) {
+        if (attachment.getContentType() == null
+                || !attachment.getContentType().startsWith("image/")
+                || attachment.getSize() > maxSourceSize.toBytes()) {
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            log.debug("Metadata extraction queue full, skipping attachment {}", attachment.getId());
+            return;
+        }
+        extract(attachment)
+                .doFinally(signalType -> permits.release())
+                .subscribe(null,
+                        e -> log.warn("Metadata extraction failed for attachment {}: {}", attachment.getId(), e.getMessage()));
+    }
+
+    private Mono<Void> extract(AttachmentRef attachment) {
+        Query byId = Query.query(Criteria.where("_id").is(new ObjectId(attachment.getId())));
+
+        return gridFsTemplate.findOne(byId)
+                .flatMap(gridFsTemplate::getResource)
+                .flatMap(resource -> DataBufferUtils.join(resource.getDownloadStream(), (int) maxSourceSize.toBytes()))
+                .flatMap(buffer -> Mono.fromCallable(() -> render(buffer))
+                        .subscribeOn(scheduler)
+                        .doOnError(RejectedExecutionException.class, e -> DataBufferUtils.release(buffer)))
+                .flatMap(image -> storeThumbnail(attachment, image.thumbnail())
+                        .flatMap(thumbnailId -> mongoTemplate.updateFirst(byId, new Update()
+                                .set("metadata.width", image.width())
+                                .set("metadata.height", image.height())
+                                .set("metadata.thumbnailId", thumbnailId.toHexString()), FILES_COLLECTION)))
+                .then();
+    }
+
+    private Mono<ObjectId> storeThumbnail(AttachmentRef attachment, byte[] thumbnail) {
+        Document metadata = new Document("thumbnailOf", attachment.getId());
+        return gridFsTemplate.store(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(thumbnail)),
+                "thumbnail-" + attachment.getId() + ".jpg", "image/jpeg", metadata);
+    }
+
+    private ImageInfo render(DataBuffer buffer) throws IOException {
+        try (InputStream in = buffer.asInputStream(true);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = imageIn != null ? ImageIO.getImageReaders(imageIn) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null; // Not a format ImageIO can decode
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                // Dimensions come from the header, before any pixel data is decoded
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.debug("Skipping thumbnail for {}x{} image over the pixel limit", width, height);
+                    return null;
+                }
+
+                // Decode only every n-th pixel, keeping the long side at least thumbnail-sized
+                int subsampling = Math.max(1, Math.max(width, height) / thumbnailSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return new ImageInfo(width, height, thumbnail(reader.read(0, param)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] thumbnail(BufferedImage source) throws IOException {
+        double scale = Math.min(1.0, (double) thumbnailSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(thumbnail, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private record ImageInfo(int width, int height, byte[] thumbnail) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.studynexus.service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.studynexus.model.AttachmentRef;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsResource;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+public class AttachmentService {
+    // Key under which Spring Data stores the content type in GridFS file metadata
+    private static final String CONTENT_TYPE_FIELD = "_contentType";
+
+    private final ReactiveGridFsTemplate gridFsTemplate;
+    private final AttachmentMetadataExtractor metadataExtractor;
+
+    @Value("${attachments.max-size:25MB}")
+    private DataSize maxSize;
+
+    @Value("${attachments.max-per-message:10}")
+    private int maxPerMessage;
+
+    /**
+     * Streams an uploaded file into GridFS chunk by chunk; the file is never held in
+     * memory as a whole. Uploads over {@code attachments.max-size} are aborted.
+     */
+    public Mono<AttachmentRef> store(FilePart file, String uploaderId, String roomId) {
+        MediaType mediaType = file.headers().getContentType();
+        String contentType = mediaType != null ? mediaType.toString() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+        AtomicLong size = new AtomicLong();
+        Flux<DataBuffer> content = file.content()
+                .handle((buffer, sink) -> {
+                    if (size.addAndGet(buffer.readableByteCount()) > maxSize.toBytes()) {
+                        DataBufferUtils.release(buffer);
+                        sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Attachment exceeds " + maxSize.toMegabytes() + "MB"));
+                    } else {
+                        sink.next(buffer);
+                    }
+                });
+
+        Document metadata = new Document("uploaderId", uploaderId).append("roomId", roomId);
+        return gridFsTemplate.store(content, file.filename(), contentType, metadata)
+                .map(id -> AttachmentRef.builder()
+                        .id(id.toHexString())
+                        .filename(file.filename())
+                        .contentType(contentType)
+                        .size(size.get())
+                        .build())
+                .doOnNext(metadataExtractor::extractAsync);
+    }
+
+    public Mono<GridFSFile> findAttachment(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Mono.empty();
+        }
+        return gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(new ObjectId(id))));
+    }
+
+    /**
+     * The thumbnail rendered for the attachment, looked up by the id the extractor
+     * recorded on the original file.
+     */
+    public Mono<GridFSFile> findThumbnail(GridFSFile attachment) {
+        String thumbnailId = attachment.getMetadata() != null ? attachment.getMetadata().getString("thumbnailId") : null;
+        return thumbnailId != null ? findAttachment(thumbnailId) : Mono.empty();
+    }
+
+    /**
+     * Streams {@code length} bytes of the file starting at {@code offset}. Chunks are
+     * passed through as they arrive from GridFS, so ranges do not buffer the file.
+     */
+    public Flux<DataBuffer> download(GridFSFile file, long offset, long length) {
+        Flux<DataBuffer> stream = gridFsTemplate.getResource(file)
+                .flatMapMany(ReactiveGridFsResource::getDownloadStream);
+        if (offset > 0) {
+            stream = DataBufferUtils.skipUntilByteCount(stream, offset);
+        }
+        if (offset + length < file.getLength()) {
+            stream = DataBufferUtils.takeUntilByteCount(stream, length);
+        }
+        return stream;
+    }
+
+    /**
+     * Resolves attachment ids sent by a client into references, keeping only files
+     * that were uploaded to the given room.
+     */
+    public Flux<AttachmentRef> resolveRefs(String roomId, List<String> ids) {
+        List<ObjectId> objectIds = ids.stream()
+                .filter(ObjectId::isValid)
+                .distinct()
+                .limit(maxPerMessage)
+                .map(ObjectId::new)
+                .toList();
+        if (objectIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return gridFsTemplate.find(Query.query(Criteria.where("_id").in(objectIds).and("metadata.roomId").is(roomId)))
+                .map(AttachmentService::toRef);
+    }
+
+    public static String roomIdOf(GridFSFile file) {
+        return file.getMetadata() != null ? file.getMetadata().getString("roomId") : null;
+    }
+
+    public static String contentTypeOf(GridFSFile file) {
+        String contentType = file.getMetadata() != null ? file.getMetadata().getString(CONTENT_TYPE_FIELD) : null;
+        return contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    private static AttachmentRef toRef(GridFSFile file) {
+        return AttachmentRef.builder()
+                .id(file.getObjectId().toHexString())
+                .filename(file.getFilename())
+                .contentType(contentTypeOf(file))
+                .size(file.getLength())
+                .build();
+    }
+}
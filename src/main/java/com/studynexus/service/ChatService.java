@@ -1,13 +1,18 @@
 package com.studynexus.service;
 
 import com.studynexus.model.ChatMessage;
+import com.studynexus.model.ChatRoom;
 import com.studynexus.model.User;
 import com.studynexus.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -15,10 +20,14 @@ import reactor.core.publisher.Mono;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChatService {
+    private static final int PREVIEW_LENGTH = 140;
+
     private final ReactiveMongoTemplate mongoTemplate;
     private final UserRepository userRepository;
 
@@ -37,6 +46,37 @@ public class ChatService {
                 : user2Id + "_" + user1Id;
     }
 
+    /**
+     * Returns the direct room for the pair, creating its chat_rooms record on first use.
+     * Pairs that already have a room are answered with a single lookup by id; the user
+     * existence checks only run when the room is about to be created. Empty if either
+     * user does not exist.
+     */
+    public Mono<ChatRoom> getOrCreateDirectRoom(String user1Id, String user2Id) {
+        String roomId = generateDirectRoomId(user1Id, user2Id);
+        return mongoTemplate.findById(roomId, ChatRoom.class)
+                .switchIfEmpty(Mono.defer(() -> Mono.zip(userExists(user1Id), userExists(user2Id))
+                        .filter(exists -> exists.getT1() && exists.getT2())
+                        .flatMap(exists -> mongoTemplate.findAndModify(
+                                Query.query(Criteria.where("_id").is(roomId)),
+                                newRoomFields(roomId),
+                                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                                ChatRoom.class))));
+    }
+
+    /**
+     * Conversations the user takes part in that have at least one message, most
+     * recently active first. Served by the participants/lastActivity index.
+     */
+    public Flux<ChatRoom> getUserRooms(String userId, int limit) {
+        return mongoTemplate.find(
+                Query.query(Criteria.where("participants").is(userId).and("lastActivity").ne(null))
+                        .with(Sort.by(Sort.Direction.DESC, "lastActivity"))
+                        .limit(limit),
+                ChatRoom.class
+        );
+    }
+
     public List<String> getRoomMembers(String roomId) {
         // For direct messages, extract user IDs from room ID
         return Arrays.asList(roomId.split("_"));
@@ -44,12 +84,64 @@ public class ChatService {
 
     public Mono<ChatMessage> saveMessage(ChatMessage message) {
         message.setTimestamp(Instant.now());
-        return mongoTemplate.save(message);
+        // Room preview upkeep runs alongside fan-out rather than ahead of it; it handles its own errors
+        return mongoTemplate.save(message)
+                .doOnNext(saved -> updateRoomActivity(saved).subscribe());
+    }
+
+    /**
+     * Moves the room's last activity and preview forward to this message, creating the
+     * room record if an older room has none yet. Never moves them backwards: if a newer
+     * message already landed, the filter does not match, the upsert collides on _id,
+     * and the stale update is dropped.
+     */
+    private Mono<Void> updateRoomActivity(ChatMessage message) {
+        Query newerThanCurrent = Query.query(Criteria.where("_id").is(message.getRoomId())
+                .orOperator(
+                        Criteria.where("lastActivity").lt(message.getTimestamp()),
+                        Criteria.where("lastActivity").is(null)));
+
+        Update update = newRoomFields(message.getRoomId())
+                .set("lastActivity", message.getTimestamp())
+                .set("lastMessage", ChatRoom.LastMessage.builder()
+                        .senderId(message.getSenderId())
+                        .preview(message.preview(PREVIEW_LENGTH))
+                        .timestamp(message.getTimestamp())
+                        .build());
+
+        return mongoTemplate.upsert(newerThanCurrent, update, ChatRoom.class)
+                .then()
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                .onErrorResume(e -> {
+                    // The message is already stored; a stale preview should not fail delivery
+                    log.error("Error updating activity for room {}: {}", message.getRoomId(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Update newRoomFields(String roomId) {
+        return new Update()
+                .setOnInsert("participants", Set.copyOf(getRoomMembers(roomId)))
+                .setOnInsert("type", ChatRoom.RoomType.DIRECT)
+                .setOnInsert("createdAt", Instant.now());
     }
 
     public Flux<ChatMessage> getRoomHistory(String roomId) {
+        return getRoomHistory(roomId, null);
+    }
+
+    /**
+     * Messages in the room in timestamp order, optionally only those at or after
+     * {@code since}. The bound is inclusive because the resume point is shared across
+     * rooms and millisecond timestamps are not unique; callers drop ids they already have.
+     */
+    public Flux<ChatMessage> getRoomHistory(String roomId, Instant since) {
+        Criteria criteria = Criteria.where("roomId").is(roomId);
+        if (since != null) {
+            criteria = criteria.and("timestamp").gte(since);
+        }
         return mongoTemplate.find(
-                Query.query(Criteria.where("roomId").is(roomId))
+                Query.query(criteria)
                         .with(Sort.by(Sort.Direction.ASC, "timestamp")),
                 ChatMessage.class
         );
@@ -0,0 +1,21 @@
+package com.studynexus.service;
+
+import com.studynexus.model.NotificationDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stand-in for a real email or push integration; logs each digest instead.
+ */
+@Slf4j
+@Component
+public class LoggingNotificationSink implements NotificationSink {
+
+    @Override
+    public Mono<Void> send(NotificationDigest digest) {
+        log.info("Digest for user {}: {} new messages in {} rooms",
+                digest.getUserId(), digest.getCount(), digest.getRoomIds().size());
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,11 @@
+package com.studynexus.service;
+
+import com.studynexus.model.NotificationDigest;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outbound channel for notification digests, e.g. email or push.
+ */
+public interface NotificationSink {
+    Mono<Void> send(NotificationDigest digest);
+}
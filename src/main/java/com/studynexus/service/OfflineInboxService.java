@@ -0,0 +1,170 @@
+package com.studynexus.service;
+
+import com.studynexus.model.ChatMessage;
+import com.studynexus.model.NotificationDigest;
+import com.studynexus.model.OfflineNotification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Per-user inbox for messages that could not be delivered live, either because the
+ * recipient had no open connection or because the frame could not be queued for them.
+ * Everything lives in Mongo and is read back with streaming cursors, so the queue can
+ * grow to millions of items without growing the heap.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OfflineInboxService {
+    private static final int PREVIEW_LENGTH = 140;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final NotificationSink notificationSink;
+
+    // Most notifications replayed on a single connect; older ones are still covered by the digest
+    @Value("${inbox.drain-limit:500}")
+    private int drainLimit;
+
+    @Value("${inbox.digest.interval:15m}")
+    private Duration digestInterval;
+
+    // Claims older than this are assumed to belong to a node that died mid-digest and are taken over
+    @Value("${inbox.digest.claim-timeout:1h}")
+    private Duration claimTimeout;
+
+    private Disposable digestJob;
+
+    @PostConstruct
+    void startDigestJob() {
+        digestJob = Flux.interval(digestInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> runDigest()
+                        .onErrorResume(e -> {
+                            log.error("Notification digest failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stopDigestJob() {
+        if (digestJob != null) {
+            digestJob.dispose();
+        }
+    }
+
+    public Mono<Void> append(List<String> userIds, ChatMessage message) {
+        List<OfflineNotification> notifications = userIds.stream()
+                .map(userId -> OfflineNotification.builder()
+                        .userId(userId)
+                        .roomId(message.getRoomId())
+                        .senderId(message.getSenderId())
+                        .preview(message.preview(PREVIEW_LENGTH))
+                        .createdAt(message.getTimestamp())
+                        .build())
+                .toList();
+        return mongoTemplate.insertAll(notifications).then();
+    }
+
+    /**
+     * Oldest pending notifications for the user, up to {@code inbox.drain-limit}.
+     * They stay pending, and are sent again on the next connect, until the client
+     * acknowledges them with {@link #acknowledge(String, List)}.
+     */
+    public Flux<OfflineNotification> pending(String userId) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(drainLimit);
+        return mongoTemplate.find(query, OfflineNotification.class);
+    }
+
+    /**
+     * Removes notifications the client has confirmed receiving. Only the user's own
+     * notifications are matched, and at most {@code inbox.drain-limit} ids per call.
+     */
+    public Mono<Void> acknowledge(String userId, List<String> ids) {
+        List<String> limited = ids.stream().filter(Objects::nonNull).distinct().limit(drainLimit).toList();
+        if (limited.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.remove(Query.query(Criteria.where("_id").in(limited).and("userId").is(userId)),
+                OfflineNotification.class).then();
+    }
+
+    /**
+     * Rolls every not-yet-digested notification into one summary record per user and
+     * hands each summary to the {@link NotificationSink}. Every node runs this job, so
+     * rows are first claimed with a per-run token and only claimed rows are digested;
+     * a row can be claimed by one run only. Grouping happens in Mongo and the results
+     * are consumed one user at a time.
+     */
+    public Mono<Void> runDigest() {
+        String claimToken = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+
+        Query unclaimed = Query.query(Criteria.where("digested").is(false)
+                .orOperator(
+                        Criteria.where("claimedBy").is(null),
+                        Criteria.where("claimedAt").lt(now.minus(claimTimeout))));
+        Update claim = new Update().set("claimedBy", claimToken).set("claimedAt", now);
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("claimedBy").is(claimToken).and("digested").is(false)),
+                        Aggregation.group("userId")
+                                .count().as("count")
+                                .addToSet("roomId").as("roomIds")
+                                .min("createdAt").as("firstAt")
+                                .max("createdAt").as("lastAt"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        return mongoTemplate.updateMulti(unclaimed, claim, OfflineNotification.class)
+                .filter(result -> result.getModifiedCount() > 0)
+                .flatMapMany(result -> mongoTemplate.aggregate(aggregation, OfflineNotification.class, Document.class))
+                .map(OfflineInboxService::toDigest)
+                .concatMap(digest -> publishDigest(digest, claimToken))
+                .then();
+    }
+
+    private Mono<Void> publishDigest(NotificationDigest digest, String claimToken) {
+        Query digested = Query.query(Criteria.where("claimedBy").is(claimToken)
+                .and("userId").is(digest.getUserId())
+                .and("digested").is(false));
+
+        return mongoTemplate.insert(digest)
+                .flatMap(saved -> mongoTemplate.updateMulti(digested, Update.update("digested", true), OfflineNotification.class)
+                        .then(notificationSink.send(saved)));
+    }
+
+    private static NotificationDigest toDigest(Document group) {
+        return NotificationDigest.builder()
+                .userId(group.getString("_id"))
+                .count(group.getInteger("count"))
+                .roomIds(new HashSet<>(group.getList("roomIds", String.class)))
+                .firstAt(group.getDate("firstAt").toInstant())
+                .lastAt(group.getDate("lastAt").toInstant())
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.studynexus.websocket;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Drains the chat WebSocket connections when the application context shuts down.
+ * Runs in the highest lifecycle phase so it completes before the web server's own
+ * graceful shutdown stops accepting requests.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatDrainLifecycle implements SmartLifecycle {
+    private final ChatHandler chatHandler;
+
+    @Value("${chat.drain.window:20s}")
+    private Duration drainWindow;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        stop(() -> { });
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        chatHandler.drain(drainWindow)
+                .doFinally(signalType -> {
+                    running = false;
+                    callback.run();
+                })
+                .subscribe(null, e -> log.error("Error draining chat connections: {}", e.getMessage()));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+}
@@ -2,22 +2,44 @@ package com.studynexus.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studynexus.dto.ChatMessageDTO;
+import com.studynexus.dto.ChatMetricsSnapshot;
+import com.studynexus.metrics.ChatMetrics;
+import com.studynexus.model.AttachmentRef;
 import com.studynexus.model.ChatMessage;
+import com.studynexus.model.OfflineNotification;
 import com.studynexus.security.JWTUtil;
+import com.studynexus.service.AttachmentService;
 import com.studynexus.service.ChatService;
+import com.studynexus.service.OfflineInboxService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Component
@@ -25,36 +47,87 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ChatHandler implements WebSocketHandler {
     private final ObjectMapper objectMapper;
     private final ChatService chatService;
+    private final AttachmentService attachmentService;
+    private final OfflineInboxService offlineInboxService;
     private final JWTUtil jwtUtil;
+    private final EphemeralEventLane ephemeralEventLane;
+    private final Scheduler blockingScheduler;
+    private final ChatMetrics chatMetrics;
 
-    // Store active sessions by user ID
-    private static final Map<String, WebSocketSession> userSessions = new ConcurrentHashMap<>();
+    // How long to wait for in-flight messages, and then for each client's queued frames, while draining
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(5);
+
+    // Store active connections by user ID
+    private static final Map<String, ClientConnection> userSessions = new ConcurrentHashMap<>();
 
     // Store room memberships: roomId -> Set of userIds
     private static final Map<String, Set<String>> roomMembers = new ConcurrentHashMap<>();
 
+    // Set once the node starts draining; new connections are turned away from then on
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // Incoming messages that are still being persisted or fanned out
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${chat.drain.max-reconnect-delay:10s}")
+    private Duration maxReconnectDelay;
+
+    // Ephemeral events are not queued for clients that already have this many frames waiting
+    @Value("${chat.ephemeral.max-queue-depth:64}")
+    private int ephemeralMaxQueueDepth;
+
+    @Value("${chat.ephemeral.max-content-length:512}")
+    private int ephemeralMaxContentLength;
+
+    private Disposable ephemeralDelivery;
+
+    @PostConstruct
+    void startEphemeralDelivery() {
+        ephemeralDelivery = ephemeralEventLane.events()
+                .subscribe(this::deliverEphemeralEvent,
+                        e -> log.error("Ephemeral event delivery stopped: {}", e.getMessage()));
+    }
+
+    @PreDestroy
+    void stopEphemeralDelivery() {
+        if (ephemeralDelivery != null) {
+            ephemeralDelivery.dispose();
+        }
+    }
+
     @Override
     public @NonNull Mono<Void> handle(@NonNull WebSocketSession session) {
-        String userId = validateAndGetUserId(session);
-        if (userId == null) {
-            return session.close(); // Invalid token, close connection
+        if (draining.get()) {
+            return session.close(CloseStatus.SERVICE_RESTARTED);
         }
 
+        // Token verification is HMAC work; keep it off the event loop
+        return Mono.fromCallable(() -> Optional.ofNullable(validateAndGetUserId(session)))
+                .subscribeOn(blockingScheduler)
+                .flatMap(userId -> userId
+                        .map(id -> handleAuthenticated(session, id))
+                        .orElseGet(session::close)); // Invalid token, close connection
+    }
+
+    private Mono<Void> handleAuthenticated(WebSocketSession session, String userId) {
         // Remove any existing session for this user
-        WebSocketSession existingSession = userSessions.get(userId);
-        if (existingSession != null && existingSession.isOpen()) {
-            return existingSession.close().then(Mono.empty());
+        ClientConnection existingConnection = userSessions.get(userId);
+        if (existingConnection != null && existingConnection.isOpen()) {
+            return existingConnection.getSession().close().then(Mono.empty());
         }
 
-        // Store new session
-        userSessions.put(userId, session);
+        // Store new connection
+        ClientConnection connection = new ClientConnection(userId, session);
+        userSessions.put(userId, connection);
 
-        return session.receive()
+        Mono<Void> input = session.receive()
                 .flatMap(message -> {
                     // Retain the message before processing
                     message.retain();
+                    inFlight.incrementAndGet();
                     return handleIncomingMessage(userId, message)
                             .doFinally(signalType -> {
+                                inFlight.decrementAndGet();
                                 try {
                                     // Release the message after processing
                                     message.release();
@@ -67,8 +140,122 @@ public class ChatHandler implements WebSocketHandler {
                                 return Mono.empty();
                             });
                 })
-                .doFinally(signalType -> cleanup(userId))
+                .doFinally(signalType -> cleanup(connection))
                 .then();
+
+        Mono<Void> output = session.send(connection.frames());
+
+        // A connection that registered after drain() took its snapshot would never get a
+        // RECONNECT hint, so drain it here. Checked after the put, so it is either in the
+        // snapshot or sees the flag.
+        Mono<Void> afterConnect = draining.get()
+                ? drainConnection(connection)
+                : deliverOfflineInbox(connection);
+
+        return Mono.when(input, output, afterConnect);
+    }
+
+    private Mono<Void> deliverOfflineInbox(ClientConnection connection) {
+        // Notifications stay in the inbox until the client sends NOTIFICATION_ACK for them,
+        // so anything lost with the socket is sent again on the next connect
+        return offlineInboxService.pending(connection.getUserId())
+                .takeWhile(notification -> enqueue(connection, toNotificationDTO(notification)))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Error delivering offline inbox to user {}: {}", connection.getUserId(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static ChatMessageDTO toNotificationDTO(OfflineNotification notification) {
+        return ChatMessageDTO.builder()
+                .id(notification.getId())
+                .type(ChatMessage.MessageType.NOTIFICATION.name())
+                .roomId(notification.getRoomId())
+                .senderId(notification.getSenderId())
+                .content(notification.getPreview())
+                .timestamp(notification.getCreatedAt().toEpochMilli())
+                .build();
+    }
+
+    /**
+     * Puts this node into drain mode: new connections are refused, in-flight messages
+     * are given a chance to finish, and every connected client is sent a RECONNECT
+     * hint and closed. Closes are spread evenly over {@code window} so that clients
+     * do not all land on the remaining nodes at once.
+     */
+    public Mono<Void> drain(Duration window) {
+        if (!draining.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+
+        List<ClientConnection> connections = List.copyOf(userSessions.values());
+        log.info("Draining {} WebSocket connections over {}", connections.size(), window);
+        if (connections.isEmpty()) {
+            return Mono.empty();
+        }
+
+        Duration step = window.dividedBy(connections.size());
+        return awaitInFlight(FLUSH_TIMEOUT)
+                .thenMany(Flux.fromIterable(connections))
+                .delayElements(step)
+                .flatMap(this::drainConnection)
+                .then()
+                .doFinally(signalType -> log.info("Drain complete"));
+    }
+
+    public int sessionCount() {
+        return userSessions.size();
+    }
+
+    /**
+     * The connections with the most frames waiting in their outbound queue, worst first.
+     */
+    public List<ChatMetricsSnapshot.ConsumerLag> slowestConsumers(int limit) {
+        // Pending counts keep moving, so take one reading per connection before ranking
+        PriorityQueue<ChatMetricsSnapshot.ConsumerLag> slowest =
+                new PriorityQueue<>(Comparator.comparingInt(ChatMetricsSnapshot.ConsumerLag::pendingFrames));
+        for (ClientConnection connection : userSessions.values()) {
+            int pending = connection.pendingCount();
+            if (pending == 0) {
+                continue;
+            }
+            slowest.add(new ChatMetricsSnapshot.ConsumerLag(connection.getUserId(), pending));
+            if (slowest.size() > limit) {
+                slowest.poll();
+            }
+        }
+        return slowest.stream()
+                .sorted(Comparator.comparingInt(ChatMetricsSnapshot.ConsumerLag::pendingFrames).reversed())
+                .toList();
+    }
+
+    private Mono<Void> awaitInFlight(Duration timeout) {
+        return Flux.interval(Duration.ofMillis(50))
+                .filter(tick -> inFlight.get() == 0)
+                .next()
+                .timeout(timeout, Mono.empty())
+                .then();
+    }
+
+    private Mono<Void> drainConnection(ClientConnection connection) {
+        long delay = ThreadLocalRandom.current().nextLong(maxReconnectDelay.toMillis() + 1);
+        ChatMessageDTO hint = ChatMessageDTO.builder()
+                .type(ChatMessage.MessageType.RECONNECT.name())
+                .timestamp(connection.lastDeliveredAt())
+                .reconnectDelay(delay)
+                .build();
+
+        enqueue(connection, hint);
+        connection.complete();
+
+        return connection.whenFlushed()
+                .timeout(FLUSH_TIMEOUT, Mono.empty())
+                .then(Mono.defer(() -> connection.getSession().close(CloseStatus.SERVICE_RESTARTED)))
+                .onErrorResume(e -> {
+                    log.warn("Error closing connection for user {}: {}", connection.getUserId(), e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     private String validateAndGetUserId(WebSocketSession session) {
@@ -94,9 +281,14 @@ public class ChatHandler implements WebSocketHandler {
                 .flatMap(messageDTO -> {
                     try {
                         ChatMessage.MessageType type = ChatMessage.MessageType.valueOf(messageDTO.getType());
+                        // Every ephemeral type goes through the coalescing lane, whatever its name
+                        if (type.isEphemeral()) {
+                            return handleEphemeralEvent(userId, type, messageDTO);
+                        }
                         return switch (type) {
                             case JOIN_ROOM -> handleJoinRoom(userId, messageDTO.getRoomId());
                             case MESSAGE -> handleChatMessage(userId, messageDTO);
+                            case NOTIFICATION_ACK -> handleNotificationAck(userId, messageDTO);
                             default -> {
                                 log.warn("Unsupported message type: {}", type);
                                 yield Mono.empty();
@@ -107,7 +299,7 @@ public class ChatHandler implements WebSocketHandler {
                         return Mono.empty();
                     }
                 })
-                .subscribeOn(Schedulers.boundedElastic());
+                .subscribeOn(blockingScheduler);
     }
 
     private Mono<Void> handleJoinRoom(String userId, String roomId) {
@@ -123,7 +315,8 @@ public class ChatHandler implements WebSocketHandler {
                 .roomId(roomId)
                 .build();
 
-        return sendMessageToUser(userId, joinMessage);
+        sendMessageToUser(userId, joinMessage);
+        return Mono.empty();
     }
 
     private Mono<Void> handleChatMessage(String userId, ChatMessageDTO messageDTO) {
@@ -134,53 +327,142 @@ public class ChatHandler implements WebSocketHandler {
             return Mono.empty();
         }
 
-        ChatMessage chatMessage = ChatMessage.builder()
-                .type(ChatMessage.MessageType.MESSAGE)
-                .roomId(messageDTO.getRoomId())
-                .senderId(userId)
-                .content(messageDTO.getContent())
-                .build();
-
-        return chatService.saveMessage(chatMessage)
+        return resolveAttachments(messageDTO)
+                .flatMap(attachments -> {
+                    ChatMessage chatMessage = ChatMessage.builder()
+                            .type(ChatMessage.MessageType.MESSAGE)
+                            .roomId(messageDTO.getRoomId())
+                            .senderId(userId)
+                            .content(messageDTO.getContent())
+                            .attachments(attachments.isEmpty() ? null : attachments)
+                            .build();
+                    return chatService.saveMessage(chatMessage);
+                })
                 .flatMap(saved -> {
                     ChatMessageDTO dto = ChatMessageDTO.convertToDTO(saved);
                     Set<String> members = roomMembers.get(messageDTO.getRoomId());
+                    chatMetrics.recordMessage(messageDTO.getRoomId(), members != null ? members.size() : 0);
 
-                    if (members != null && !members.isEmpty()) {
-                        return Mono.when(
-                                members.stream()
-                                        .map(memberId -> sendMessageToUser(memberId, dto))
-                                        .toList()
-                        );
+                    Set<String> delivered = new HashSet<>();
+                    if (members != null) {
+                        for (String memberId : members) {
+                            if (sendMessageToUser(memberId, dto)) {
+                                delivered.add(memberId);
+                            }
+                        }
                     }
-                    return Mono.empty();
+
+                    // Every member the live frame did not reach gets the message in their offline inbox
+                    List<String> missedMembers = chatService.getRoomMembers(messageDTO.getRoomId()).stream()
+                            .filter(memberId -> !memberId.equals(userId) && !delivered.contains(memberId))
+                            .toList();
+                    return missedMembers.isEmpty()
+                            ? Mono.empty()
+                            : offlineInboxService.append(missedMembers, saved);
                 });
     }
 
-    private Mono<Void> sendMessageToUser(String userId, ChatMessageDTO message) {
-        WebSocketSession session = userSessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                String messageJson = objectMapper.writeValueAsString(message);
-                return session.send(Mono.just(session.textMessage(messageJson)))
-                        .onErrorResume(e -> {
-                            log.error("Error sending message to user {}: {}", userId, e.getMessage());
-                            return Mono.empty();
-                        });
-            } catch (Exception e) {
-                log.error("Error serializing message: {}", e.getMessage());
-            }
+    private Mono<Void> handleNotificationAck(String userId, ChatMessageDTO messageDTO) {
+        List<String> ids = messageDTO.getIds();
+        if (ids == null || ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return offlineInboxService.acknowledge(userId, ids);
+    }
+
+    private Mono<List<AttachmentRef>> resolveAttachments(ChatMessageDTO messageDTO) {
+        List<AttachmentRef> requested = messageDTO.getAttachments();
+        if (requested == null || requested.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        // Clients send ids only; names, types and sizes come from what was actually uploaded
+        List<String> ids = requested.stream().map(AttachmentRef::getId).filter(Objects::nonNull).toList();
+        return attachmentService.resolveRefs(messageDTO.getRoomId(), ids).collectList();
+    }
+
+    private Mono<Void> handleEphemeralEvent(String userId, ChatMessage.MessageType type, ChatMessageDTO messageDTO) {
+        if (draining.get() || !isUserInRoom(userId, messageDTO.getRoomId())) {
+            return Mono.empty();
+        }
+
+        String content = messageDTO.getContent();
+        if (content != null && content.length() > ephemeralMaxContentLength) {
+            log.debug("Dropping oversized {} event from user {}", type, userId);
+            return Mono.empty();
         }
+
+        ephemeralEventLane.offer(ChatMessageDTO.builder()
+                .type(type.name())
+                .roomId(messageDTO.getRoomId())
+                .senderId(userId)
+                .content(content)
+                .timestamp(System.currentTimeMillis())
+                .build());
         return Mono.empty();
     }
 
+    private void deliverEphemeralEvent(ChatMessageDTO event) {
+        Set<String> members = roomMembers.get(event.getRoomId());
+        if (members == null) {
+            return;
+        }
+
+        String eventJson;
+        try {
+            eventJson = objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            log.error("Error serializing ephemeral event: {}", e.getMessage());
+            return;
+        }
+
+        for (String memberId : members) {
+            if (memberId.equals(event.getSenderId())) {
+                continue;
+            }
+            ClientConnection connection = userSessions.get(memberId);
+            // Under backpressure ephemeral events are the first thing to go
+            if (connection != null && connection.isOpen() && connection.pendingCount() < ephemeralMaxQueueDepth) {
+                connection.enqueue(eventJson);
+            }
+        }
+    }
+
+    /**
+     * Queues the message for the user's connection on this node. Returns false if the
+     * user has no open connection here or the frame could not be queued.
+     */
+    private boolean sendMessageToUser(String userId, ChatMessageDTO message) {
+        ClientConnection connection = userSessions.get(userId);
+        return connection != null && connection.isOpen() && enqueue(connection, message);
+    }
+
+    private boolean enqueue(ClientConnection connection, ChatMessageDTO message) {
+        try {
+            String messageJson = objectMapper.writeValueAsString(message);
+            if (!connection.enqueue(messageJson)) {
+                log.debug("Dropping message for closing connection of user {}", connection.getUserId());
+                return false;
+            }
+            if (ChatMessage.MessageType.MESSAGE.name().equals(message.getType())) {
+                // Only durable chat messages move the client's resume point forward
+                connection.markDelivered(message.getTimestamp());
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Error serializing message: {}", e.getMessage());
+            return false;
+        }
+    }
+
     private boolean isUserInRoom(String userId, String roomId) {
         return chatService.isValidRoomMember(userId, roomId);
     }
 
-    private void cleanup(String userId) {
+    private void cleanup(ClientConnection connection) {
+        String userId = connection.getUserId();
         log.info("Cleaning up resources for user: {}", userId);
-        userSessions.remove(userId);
+        connection.complete();
+        userSessions.remove(userId, connection);
         roomMembers.values().forEach(members -> members.remove(userId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.studynexus.websocket;
+
+import lombok.Getter;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A connected user's session together with its outbound queue. All frames for the
+ * user go through a single queue so that concurrent senders never race on
+ * {@link WebSocketSession#send}, and so the queue can be flushed on drain.
+ */
+class ClientConnection {
+    @Getter
+    private final String userId;
+    @Getter
+    private final WebSocketSession session;
+
+    private final Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Empty<Void> flushed = Sinks.empty();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong lastDeliveredAt = new AtomicLong();
+
+    ClientConnection(String userId, WebSocketSession session) {
+        this.userId = userId;
+        this.session = session;
+    }
+
+    /**
+     * Queues a serialized frame for this client. Returns false if the queue has
+     * already been completed (the connection is closing).
+     */
+    boolean enqueue(String payload) {
+        pending.incrementAndGet();
+        Sinks.EmitResult result;
+        while ((result = outbound.tryEmitNext(payload)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+        if (result.isFailure()) {
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The frames to hand to {@link WebSocketSession#send}. Completes once
+     * {@link #complete()} has been called and everything queued has been written.
+     */
+    Flux<WebSocketMessage> frames() {
+        return outbound.asFlux()
+                .doOnNext(payload -> pending.decrementAndGet())
+                .map(session::textMessage)
+                .doFinally(signalType -> flushed.tryEmitEmpty());
+    }
+
+    /**
+     * Stops accepting new frames; frames already queued are still written.
+     */
+    void complete() {
+        while (outbound.tryEmitComplete() == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+    }
+
+    Mono<Void> whenFlushed() {
+        return flushed.asMono();
+    }
+
+    int pendingCount() {
+        return pending.get();
+    }
+
+    boolean isOpen() {
+        return session.isOpen();
+    }
+
+    void markDelivered(Long timestamp) {
+        if (timestamp != null) {
+            lastDeliveredAt.accumulateAndGet(timestamp, Math::max);
+        }
+    }
+
+    Long lastDeliveredAt() {
+        long value = lastDeliveredAt.get();
+        return value == 0 ? null : value;
+    }
+}
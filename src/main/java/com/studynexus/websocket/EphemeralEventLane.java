@@ -0,0 +1,68 @@
+package com.studynexus.websocket;
+
+import com.studynexus.dto.ChatMessageDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivery lane for ephemeral events such as typing and cursor pings. Events skip
+ * persistence entirely. Only the latest event per sender, room and type is kept,
+ * and pending events are released once per coalesce window, so a sender produces
+ * at most one event of each type per room per window.
+ */
+@Slf4j
+@Component
+public class EphemeralEventLane {
+
+    @Value("${chat.ephemeral.coalesce-window:250ms}")
+    private Duration coalesceWindow;
+
+    @Value("${chat.ephemeral.max-pending:10000}")
+    private int maxPending;
+
+    // Latest pending event per sender, room and type; newer events overwrite older ones
+    private final Map<String, ChatMessageDTO> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Queues an event for the next window. Returns false if the event was dropped
+     * because the lane is full.
+     */
+    public boolean offer(ChatMessageDTO event) {
+        String key = event.getSenderId() + '|' + event.getRoomId() + '|' + event.getType();
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            log.debug("Ephemeral lane full, dropping {} from user {}", event.getType(), event.getSenderId());
+            return false;
+        }
+        pending.put(key, event);
+        return true;
+    }
+
+    /**
+     * The coalesced events, released once per window. Ticks that arrive while the
+     * previous batch is still being delivered are dropped rather than buffered.
+     */
+    public Flux<ChatMessageDTO> events() {
+        return Flux.interval(coalesceWindow)
+                .onBackpressureDrop()
+                .concatMapIterable(tick -> drain(), 1);
+    }
+
+    private List<ChatMessageDTO> drain() {
+        List<ChatMessageDTO> batch = new ArrayList<>(pending.size());
+        for (String key : pending.keySet()) {
+            ChatMessageDTO event = pending.remove(key);
+            if (event != null) {
+                batch.add(event);
+            }
+        }
+        return batch;
+    }
+}
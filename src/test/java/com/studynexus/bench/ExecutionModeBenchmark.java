@@ -0,0 +1,96 @@
+package com.studynexus.bench;
+
+import com.studynexus.config.SchedulerConfig;
+import com.studynexus.config.SchedulerConfig.ExecutionMode;
+import com.studynexus.security.JWTUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+
+/**
+ * Compares the bounded-elastic and virtual-thread execution modes under a burst of
+ * concurrent connections. Each simulated connection verifies a JWT and then blocks
+ * for a short time, standing in for a blocking integration call. Peak threads counts
+ * platform threads only, so in virtual mode it reflects the carrier pool.
+ * <p>
+ * Skipped by default. Run with:
+ * <pre>
+ * ./mvnw test -Dtest=ExecutionModeBenchmark -Dbenchmark=true [-Dbenchmark.connections=20000] [-Dbenchmark.blockMillis=20]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExecutionModeBenchmark {
+
+    private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 10_000);
+    private static final long BLOCK_MILLIS = Long.getLong("benchmark.blockMillis", 20);
+
+    @Test
+    void compareExecutionModes() {
+        JWTUtil jwtUtil = new JWTUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-secret-benchmark-secret-benchmark-secret");
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", 60_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        String token = jwtUtil.generateToken("benchmark-user");
+
+        System.out.printf("%d connections, %d ms blocking call each%n", CONNECTIONS, BLOCK_MILLIS);
+        System.out.printf("%-16s %10s %10s %10s %12s%n", "mode", "p50 ms", "p99 ms", "total ms", "peak threads");
+
+        // Warm up JIT and JWT code paths so the first mode measured is not penalized
+        run(ExecutionMode.BOUNDED_ELASTIC, jwtUtil, token, 1_000);
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            Result result = run(mode, jwtUtil, token, CONNECTIONS);
+            System.out.printf("%-16s %10.1f %10.1f %10d %12d%n",
+                    mode, result.p50Millis(), result.p99Millis(), result.totalMillis(), result.peakThreads());
+        }
+    }
+
+    private Result run(ExecutionMode mode, JWTUtil jwtUtil, String token, int connections) {
+        Scheduler scheduler = new SchedulerConfig().blockingScheduler(mode);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        long start = System.nanoTime();
+        try {
+            long[] latencies = Flux.range(0, connections)
+                    .flatMap(i -> {
+                        long submitted = System.nanoTime();
+                        return Mono.fromCallable(() -> {
+                                    jwtUtil.getUserIdFromToken(token);
+                                    Thread.sleep(BLOCK_MILLIS);
+                                    return System.nanoTime() - submitted;
+                                })
+                                .subscribeOn(scheduler);
+                    }, connections)
+                    .collectList()
+                    .block(Duration.ofMinutes(10))
+                    .stream()
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+
+            return new Result(
+                    percentile(latencies, 0.50),
+                    percentile(latencies, 0.99),
+                    Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                    threads.getPeakThreadCount());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    private record Result(double p50Millis, double p99Millis, long totalMillis, int peakThreads) {
+    }
+}
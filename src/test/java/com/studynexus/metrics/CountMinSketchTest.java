@@ -0,0 +1,71 @@
+package com.studynexus.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void neverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(4, 256);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Skewed: low ids are far more frequent than high ones
+            String key = "room-" + (int) Math.pow(random.nextInt(100), 2);
+            sketch.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        exact.forEach((key, count) -> assertThat(sketch.estimate(key)).isGreaterThanOrEqualTo(count));
+    }
+
+    @Test
+    void keysWithEqualHashCodesAreCountedSeparately() {
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+        CountMinSketch sketch = new CountMinSketch(4, 2048);
+        sketch.add("Aa", 1_000);
+
+        assertThat(sketch.estimate("Aa")).isEqualTo(1_000);
+        assertThat(sketch.estimate("BB")).isZero();
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        CountMinSketch sketch = new CountMinSketch(4, 2048);
+        int threads = 8;
+        int addsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < addsPerThread; i++) {
+                    sketch.add("hot-room", 1);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sketch.estimate("hot-room")).isEqualTo((long) threads * addsPerThread);
+    }
+}
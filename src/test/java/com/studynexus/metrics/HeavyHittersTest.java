@@ -0,0 +1,38 @@
+package com.studynexus.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHittersTest {
+
+    @Test
+    void findsTopKeysOfSkewedStream() {
+        HeavyHitters heavyHitters = new HeavyHitters(5, 4, 2048);
+
+        // Ten hot rooms with 10000, 9000, ... 1000 messages, buried in 5000 rooms seen once
+        List<String> stream = new ArrayList<>();
+        for (int room = 0; room < 10; room++) {
+            for (int i = 0; i < (10 - room) * 1_000; i++) {
+                stream.add("hot-" + room);
+            }
+        }
+        for (int room = 0; room < 5_000; room++) {
+            stream.add("cold-" + room);
+        }
+        Collections.shuffle(stream, new Random(42));
+
+        stream.forEach(key -> heavyHitters.add(key, 1));
+
+        assertThat(heavyHitters.top())
+                .extracting(Map.Entry::getKey)
+                .containsExactly("hot-0", "hot-1", "hot-2", "hot-3", "hot-4");
+        assertThat(heavyHitters.top().get(0).getValue()).isGreaterThanOrEqualTo(10_000);
+    }
+}
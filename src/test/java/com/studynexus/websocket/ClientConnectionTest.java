@@ -0,0 +1,101 @@
+package com.studynexus.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClientConnectionTest {
+    private ClientConnection connection;
+
+    @BeforeEach
+    void setUp() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.textMessage(anyString())).thenAnswer(invocation -> mock(WebSocketMessage.class));
+        connection = new ClientConnection("alice", session);
+    }
+
+    @Test
+    void pendingCountTracksQueuedFrames() {
+        connection.enqueue("one");
+        connection.enqueue("two");
+        assertThat(connection.pendingCount()).isEqualTo(2);
+
+        StepVerifier.create(connection.frames(), 1)
+                .expectNextCount(1)
+                .then(() -> assertThat(connection.pendingCount()).isEqualTo(1))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void flushesQueuedFramesAfterComplete() {
+        connection.enqueue("one");
+        connection.enqueue("two");
+        connection.complete();
+
+        StepVerifier.create(connection.whenFlushed())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(connection.frames())
+                .expectNextCount(2)
+                .verifyComplete();
+
+        StepVerifier.create(connection.whenFlushed()).verifyComplete();
+        assertThat(connection.pendingCount()).isZero();
+    }
+
+    @Test
+    void rejectsFramesOnceCompleted() {
+        connection.complete();
+
+        assertThat(connection.enqueue("late")).isFalse();
+        assertThat(connection.pendingCount()).isZero();
+    }
+
+    @Test
+    void concurrentEnqueuesAreNotLost() throws InterruptedException {
+        int threads = 8;
+        int framesPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < framesPerThread; i++) {
+                    connection.enqueue("frame");
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        connection.complete();
+
+        StepVerifier.create(connection.frames())
+                .expectNextCount((long) threads * framesPerThread)
+                .verifyComplete();
+        assertThat(connection.pendingCount()).isZero();
+    }
+}
@@ -0,0 +1,80 @@
+package com.studynexus.websocket;
+
+import com.studynexus.dto.ChatMessageDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EphemeralEventLaneTest {
+    private static final Duration WINDOW = Duration.ofMillis(250);
+
+    private EphemeralEventLane lane;
+
+    @BeforeEach
+    void setUp() {
+        lane = new EphemeralEventLane();
+        ReflectionTestUtils.setField(lane, "coalesceWindow", WINDOW);
+        ReflectionTestUtils.setField(lane, "maxPending", 3);
+    }
+
+    @Test
+    void keepsOnlyLatestEventPerSenderRoomAndType() {
+        lane.offer(event("alice", "room-1", "TYPING", "a"));
+        lane.offer(event("alice", "room-1", "TYPING", "b"));
+        lane.offer(event("alice", "room-1", "TYPING", "c"));
+        lane.offer(event("alice", "room-1", "CURSOR", "x"));
+        lane.offer(event("alice", "room-2", "TYPING", "y"));
+
+        StepVerifier.withVirtualTime(() -> lane.events().take(3).collectList())
+                .thenAwait(WINDOW)
+                .assertNext(batch -> assertThat(batch)
+                        .extracting(e -> e.getRoomId() + "/" + e.getType() + "/" + e.getContent())
+                        .containsExactlyInAnyOrder("room-1/TYPING/c", "room-1/CURSOR/x", "room-2/TYPING/y"))
+                .verifyComplete();
+    }
+
+    @Test
+    void eachWindowReleasesOnlyWhatArrivedSinceTheLast() {
+        lane.offer(event("alice", "room-1", "TYPING", "first"));
+
+        StepVerifier.withVirtualTime(() -> lane.events().take(2))
+                .thenAwait(WINDOW)
+                .assertNext(e -> assertThat(e.getContent()).isEqualTo("first"))
+                .then(() -> lane.offer(event("alice", "room-1", "TYPING", "second")))
+                .thenAwait(WINDOW)
+                .assertNext(e -> assertThat(e.getContent()).isEqualTo("second"))
+                .verifyComplete();
+    }
+
+    @Test
+    void dropsNewKeysWhenFullButStillUpdatesPendingOnes() {
+        assertThat(lane.offer(event("alice", "room-1", "TYPING", "a"))).isTrue();
+        assertThat(lane.offer(event("bob", "room-1", "TYPING", "b"))).isTrue();
+        assertThat(lane.offer(event("carol", "room-1", "TYPING", "c"))).isTrue();
+
+        assertThat(lane.offer(event("dave", "room-1", "TYPING", "d"))).isFalse();
+        assertThat(lane.offer(event("alice", "room-1", "TYPING", "a2"))).isTrue();
+
+        StepVerifier.withVirtualTime(() -> lane.events().take(3).collectList())
+                .thenAwait(WINDOW)
+                .assertNext(batch -> assertThat(batch)
+                        .extracting(ChatMessageDTO::getContent)
+                        .containsExactlyInAnyOrder("a2", "b", "c"))
+                .verifyComplete();
+    }
+
+    private static ChatMessageDTO event(String senderId, String roomId, String type, String content) {
+        return ChatMessageDTO.builder()
+                .senderId(senderId)
+                .roomId(roomId)
+                .type(type)
+                .content(content)
+                .build();
+    }
+}